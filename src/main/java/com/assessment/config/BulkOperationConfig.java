@@ -0,0 +1,28 @@
+package com.assessment.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class BulkOperationConfig {
+
+    // Depends on the DataSource so it is shut down first and running chunks can still commit
+    @Bean
+    @DependsOn("dataSource")
+    public ThreadPoolTaskExecutor bulkUserExecutor(
+            @Value("${app.bulk.max-concurrent-operations:2}") int maxConcurrentOperations,
+            @Value("${app.bulk.queue-capacity:10}") int queueCapacity,
+            @Value("${app.bulk.shutdown-timeout-seconds:60}") int shutdownTimeoutSeconds) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentOperations);
+        executor.setMaxPoolSize(maxConcurrentOperations);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("bulk-user-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(shutdownTimeoutSeconds);
+        return executor;
+    }
+}
@@ -0,0 +1,50 @@
+package com.assessment.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for {@code Idempotency-Key} support on retried write endpoints.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.idempotency")
+public class IdempotencyProperties {
+
+    private boolean enabled = true;
+
+    private String headerName = "Idempotency-Key";
+
+    /** How long a completed response is replayed for duplicate keys. */
+    private Duration ttl = Duration.ofHours(24);
+
+    /** How long a duplicate waits for the first execution before getting 409 Conflict. */
+    private Duration waitTimeout = Duration.ofSeconds(30);
+
+    /**
+     * How long an unfinished claim is honoured before another instance treats it as abandoned
+     * by a crashed node. Must be longer than any request is expected to run, and longer than
+     * {@code waitTimeout}.
+     */
+    private Duration abandonAfter = Duration.ofMinutes(10);
+
+    /** Maximum number of completed responses kept in memory. */
+    private int cacheSize = 10000;
+
+    /** Response headers stored and restored on replay, besides Content-Type. */
+    private List<String> replayHeaders = new ArrayList<>(List.of("Location"));
+
+    /** Interval between purges of expired keys. */
+    private Duration purgeInterval = Duration.ofMinutes(15);
+
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    @Data
+    public static class Endpoint {
+        private String method;
+        private String pattern;
+    }
+}
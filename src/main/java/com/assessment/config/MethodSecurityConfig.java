@@ -0,0 +1,13 @@
+package com.assessment.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+
+/**
+ * Enables {@code @PreAuthorize} on controllers. Without it the role checks on endpoints such as
+ * the admin-only bulk user operations are silently ignored.
+ */
+@Configuration
+@EnableMethodSecurity
+public class MethodSecurityConfig {
+}
@@ -0,0 +1,48 @@
+package com.assessment.controller;
+
+import com.assessment.dto.BulkOperationStatus;
+import com.assessment.dto.BulkUserUpdateRequest;
+import com.assessment.service.BulkOperationRejectedException;
+import com.assessment.service.UserBulkService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/users/bulk")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "User Bulk Operations", description = "Role assignment and enable/disable for many users at once")
+public class UserBulkController {
+
+    private final UserBulkService userBulkService;
+
+    public UserBulkController(UserBulkService userBulkService) {
+        this.userBulkService = userBulkService;
+    }
+
+    @PostMapping
+    @Operation(summary = "Start a bulk role/enabled change for a set of user IDs or a filter; the caller is never changed")
+    public ResponseEntity<?> submit(@Valid @RequestBody BulkUserUpdateRequest request, Authentication authentication) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(userBulkService.submit(request, authentication.getName()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (BulkOperationRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{operationId}")
+    @Operation(summary = "Get the per-chunk progress of a bulk operation, as stored by whichever instance runs it")
+    public ResponseEntity<BulkOperationStatus> getStatus(@PathVariable String operationId) {
+        return userBulkService.getStatus(operationId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
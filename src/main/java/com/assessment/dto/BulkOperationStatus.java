@@ -0,0 +1,50 @@
+package com.assessment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOperationStatus {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private String id;
+
+    private State state;
+
+    private long chunksCompleted;
+
+    private long usersProcessed;
+
+    private long rolesGranted;
+
+    private long rolesRevoked;
+
+    private long usersUpdated;
+
+    /**
+     * Highest user ID of the last committed chunk. Chunks are applied in ID order, so after a
+     * failure every selected user up to this ID has been changed and none after it.
+     */
+    private Long lastCommittedUserId;
+
+    private String error;
+
+    private LocalDateTime submittedAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,24 @@
+package com.assessment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Selects the users a bulk operation applies to. All set criteria must match.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserFilter {
+
+    private Boolean enabled;
+
+    private String role;
+
+    private String usernamePrefix;
+
+    private String emailDomain;
+}
@@ -0,0 +1,44 @@
+package com.assessment.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Role grants/revocations and {@code enabled} changes applied to a set of users, given either
+ * as explicit {@code userIds} (at most {@value #MAX_USER_IDS}) or as a {@code filter}, which has
+ * no size limit and should be used for larger sets.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserUpdateRequest {
+
+    public static final int MAX_USER_IDS = 10000;
+
+    @Builder.Default
+    @Size(max = MAX_USER_IDS, message = "At most " + MAX_USER_IDS + " userIds per request, use filter for larger sets")
+    private Set<Long> userIds = new HashSet<>();
+
+    private BulkUserFilter filter;
+
+    @Builder.Default
+    private Set<String> grantRoles = new HashSet<>();
+
+    @Builder.Default
+    private Set<String> revokeRoles = new HashSet<>();
+
+    private Boolean enabled;
+
+    @Min(1)
+    @Max(5000)
+    private Integer chunkSize;
+}
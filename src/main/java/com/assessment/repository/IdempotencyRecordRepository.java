@@ -0,0 +1,56 @@
+package com.assessment.repository;
+
+import com.assessment.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByIdempotencyKeyAndOwnerAndRequestMethodAndRequestPath(
+            String idempotencyKey, String owner, String requestMethod, String requestPath);
+
+    /**
+     * Stores the response on a claim only if it is still in progress, i.e. it was neither
+     * taken over as abandoned nor released in the meantime.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.status = :completed, r.responseStatus = :responseStatus, "
+            + "r.contentType = :contentType, r.responseHeaders = :responseHeaders, r.responseBody = :responseBody, "
+            + "r.expiresAt = :expiresAt WHERE r.id = :id AND r.status = :inProgress")
+    int completeInProgress(@Param("id") Long id,
+                           @Param("responseStatus") int responseStatus,
+                           @Param("contentType") String contentType,
+                           @Param("responseHeaders") String responseHeaders,
+                           @Param("responseBody") String responseBody,
+                           @Param("expiresAt") LocalDateTime expiresAt,
+                           @Param("inProgress") IdempotencyRecord.Status inProgress,
+                           @Param("completed") IdempotencyRecord.Status completed);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.status = :status")
+    int deleteByIdAndStatus(@Param("id") Long id, @Param("status") IdempotencyRecord.Status status);
+
+    /**
+     * Deletes a row only while it is still expired, so a claim completed or re-taken
+     * concurrently is left alone.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.expiresAt < :now")
+    int deleteIfExpired(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,11 @@
+package com.assessment.service;
+
+/**
+ * Raised when a bulk operation cannot be queued because all workers and queue slots are taken.
+ */
+public class BulkOperationRejectedException extends RuntimeException {
+
+    public BulkOperationRejectedException(String message) {
+        super(message);
+    }
+}
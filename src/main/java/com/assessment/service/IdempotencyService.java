@@ -0,0 +1,327 @@
+package com.assessment.service;
+
+import com.assessment.config.IdempotencyProperties;
+import com.assessment.model.IdempotencyRecord;
+import com.assessment.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Stores responses of requests sent with an {@code Idempotency-Key} so that client retries are
+ * replayed instead of executed again.
+ * <p>
+ * Completed responses live in a bounded in-memory cache backed by the {@code idempotency_keys}
+ * table. Duplicates arriving while the first request is still running wait for it: on the same
+ * instance through a shared future, across instances by polling the in-progress row for up to
+ * {@code wait-timeout}. An in-progress row is only taken over as abandoned after the much longer
+ * {@code abandon-after}, so a slow request is not executed a second time by another instance.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final IdempotencyRecordRepository repository;
+    private final IdempotencyProperties properties;
+
+    // A future completed with null means the owning execution was abandoned and may be retried
+    private final Map<Key, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Key, StoredResponse> completed;
+
+    public IdempotencyService(IdempotencyRecordRepository repository, IdempotencyProperties properties) {
+        if (properties.getAbandonAfter().compareTo(properties.getWaitTimeout()) <= 0) {
+            throw new IllegalArgumentException("app.idempotency.abandon-after must be longer than wait-timeout");
+        }
+        this.repository = repository;
+        this.properties = properties;
+        int maxEntries = properties.getCacheSize();
+        this.completed = Collections.synchronizedMap(new LinkedHashMap<Key, StoredResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, StoredResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Either claims the key for execution by the caller or returns the response to replay.
+     * A claimed key must be handed back through {@link #complete} or {@link #release}.
+     */
+    public Claim claim(Key key, String requestHash) {
+        long deadline = System.nanoTime() + properties.getWaitTimeout().toNanos();
+        while (true) {
+            StoredResponse cached = cachedResponse(key);
+            if (cached != null) {
+                return Claim.replay(verified(cached, requestHash));
+            }
+
+            CompletableFuture<StoredResponse> execution = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(key, execution);
+            if (running != null) {
+                StoredResponse response = await(running, deadline);
+                if (response != null) {
+                    return Claim.replay(verified(response, requestHash));
+                }
+                continue; // The first execution was released, try to take it over
+            }
+
+            IdempotencyRecord record;
+            try {
+                record = acquire(key, requestHash, deadline);
+            } catch (RuntimeException e) {
+                finish(key, execution, null);
+                throw e;
+            }
+            if (record.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                StoredResponse stored = toResponse(record);
+                remember(key, stored);
+                finish(key, execution, stored);
+                return Claim.replay(verified(stored, requestHash));
+            }
+            return new Claim(key, requestHash, record, execution, null);
+        }
+    }
+
+    /**
+     * Records the response of a claimed execution. Server errors are not stored so the client
+     * can retry them with the same key. Neither are error statuses without a body: those come from
+     * {@code sendError}, whose body is only rendered on the later ERROR dispatch and would
+     * otherwise be replayed as a bare status.
+     */
+    public void complete(Claim claim, int status, String contentType, Map<String, String> headers, byte[] body) {
+        if (status >= HttpStatus.INTERNAL_SERVER_ERROR.value()
+                || (status >= HttpStatus.BAD_REQUEST.value() && body.length == 0)) {
+            release(claim);
+            return;
+        }
+        LocalDateTime expiresAt = LocalDateTime.now().plus(properties.getTtl());
+        StoredResponse response = new StoredResponse(claim.requestHash, status, contentType, Map.copyOf(headers),
+                body, expiresAt);
+
+        try {
+            int updated = repository.completeInProgress(claim.record.getId(), status, contentType,
+                    encodeHeaders(headers), new String(body, StandardCharsets.UTF_8), expiresAt,
+                    IdempotencyRecord.Status.IN_PROGRESS, IdempotencyRecord.Status.COMPLETED);
+            if (updated == 0) {
+                // The row was released or taken over as abandoned; another owner may hold the key now
+                logger.warn("Claim for idempotency key {} was lost before completion, response kept in memory only",
+                        claim.key.value());
+            }
+        } catch (DataAccessException e) {
+            // The in-memory copy still covers retries reaching this instance
+            logger.warn("Could not persist response for idempotency key {}: {}", claim.key.value(), e.getMessage());
+        }
+        remember(claim.key, response);
+        finish(claim.key, claim.execution, response);
+    }
+
+    /**
+     * Gives up a claimed execution without storing a response, letting duplicates execute again.
+     */
+    public void release(Claim claim) {
+        try {
+            repository.deleteByIdAndStatus(claim.record.getId(), IdempotencyRecord.Status.IN_PROGRESS);
+        } catch (DataAccessException e) {
+            logger.warn("Could not release idempotency key {}: {}", claim.key.value(), e.getMessage());
+        }
+        finish(claim.key, claim.execution, null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval:PT15M}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        completed.values().removeIf(response -> response.isExpired(now));
+        int purged = repository.deleteExpired(now);
+        if (purged > 0) {
+            logger.debug("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    /**
+     * Inserts an in-progress row for the key, or returns the completed row when another
+     * execution already stored a response.
+     */
+    private IdempotencyRecord acquire(Key key, String requestHash, long deadline) {
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            Optional<IdempotencyRecord> existing = repository.findByIdempotencyKeyAndOwnerAndRequestMethodAndRequestPath(
+                    key.value(), key.owner(), key.method(), key.path());
+            if (existing.isPresent()) {
+                IdempotencyRecord record = existing.get();
+                if (record.getExpiresAt().isBefore(now)) {
+                    // Expired response, or a claim abandoned by a crashed instance
+                    repository.deleteIfExpired(record.getId(), now);
+                } else if (record.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                    return record;
+                } else {
+                    pause(deadline); // Still running on another instance
+                    continue;
+                }
+            }
+
+            try {
+                return repository.saveAndFlush(IdempotencyRecord.builder()
+                        .idempotencyKey(key.value())
+                        .owner(key.owner())
+                        .requestMethod(key.method())
+                        .requestPath(key.path())
+                        .requestHash(requestHash)
+                        .status(IdempotencyRecord.Status.IN_PROGRESS)
+                        .createdAt(now)
+                        .expiresAt(now.plus(properties.getAbandonAfter()))
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                // Another instance claimed the key between the lookup and the insert
+                pause(deadline);
+            }
+        }
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running, long deadline) {
+        try {
+            return running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw stillInProgress();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw stillInProgress();
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void pause(long deadline) {
+        if (System.nanoTime() >= deadline) {
+            throw stillInProgress();
+        }
+        try {
+            Thread.sleep(POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw stillInProgress();
+        }
+    }
+
+    private StoredResponse cachedResponse(Key key) {
+        StoredResponse response = completed.get(key);
+        if (response != null && response.isExpired(LocalDateTime.now())) {
+            completed.remove(key, response);
+            return null;
+        }
+        return response;
+    }
+
+    private void remember(Key key, StoredResponse response) {
+        completed.put(key, response);
+    }
+
+    private void finish(Key key, CompletableFuture<StoredResponse> execution, StoredResponse response) {
+        inFlight.remove(key, execution);
+        execution.complete(response);
+    }
+
+    private static StoredResponse verified(StoredResponse response, String requestHash) {
+        if (!response.requestHash().equals(requestHash)) {
+            throw new IdempotencyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used with a different request body");
+        }
+        return response;
+    }
+
+    private static StoredResponse toResponse(IdempotencyRecord record) {
+        byte[] body = record.getResponseBody() == null
+                ? new byte[0]
+                : record.getResponseBody().getBytes(StandardCharsets.UTF_8);
+        return new StoredResponse(record.getRequestHash(), record.getResponseStatus(), record.getContentType(),
+                decodeHeaders(record.getResponseHeaders()), body, record.getExpiresAt());
+    }
+
+    private static String encodeHeaders(Map<String, String> headers) {
+        StringBuilder encoded = new StringBuilder();
+        headers.forEach((name, value) -> encoded.append(name).append(": ").append(value).append('\n'));
+        return encoded.toString();
+    }
+
+    private static Map<String, String> decodeHeaders(String encoded) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (encoded != null) {
+            for (String line : encoded.split("\n")) {
+                int separator = line.indexOf(": ");
+                if (separator > 0) {
+                    headers.put(line.substring(0, separator), line.substring(separator + 2));
+                }
+            }
+        }
+        return headers;
+    }
+
+    private static IdempotencyException stillInProgress() {
+        return new IdempotencyException(HttpStatus.CONFLICT,
+                "A request with this Idempotency-Key is still in progress");
+    }
+
+    /**
+     * Scope of an idempotency key: the same key sent by different principals or to different
+     * endpoints never shares a response.
+     */
+    public record Key(String owner, String method, String path, String value) {
+    }
+
+    public record StoredResponse(String requestHash, int status, String contentType, Map<String, String> headers,
+                                 byte[] body, LocalDateTime expiresAt) {
+
+        boolean isExpired(LocalDateTime now) {
+            return expiresAt.isBefore(now);
+        }
+    }
+
+    /**
+     * Result of {@link #claim}: either a response to replay or ownership of the execution.
+     */
+    public static final class Claim {
+        private final Key key;
+        private final String requestHash;
+        private final IdempotencyRecord record;
+        private final CompletableFuture<StoredResponse> execution;
+        private final StoredResponse replay;
+
+        private Claim(Key key, String requestHash, IdempotencyRecord record,
+                      CompletableFuture<StoredResponse> execution, StoredResponse replay) {
+            this.key = key;
+            this.requestHash = requestHash;
+            this.record = record;
+            this.execution = execution;
+            this.replay = replay;
+        }
+
+        static Claim replay(StoredResponse response) {
+            return new Claim(null, null, null, null, response);
+        }
+
+        public boolean isReplay() {
+            return replay != null;
+        }
+
+        public StoredResponse getReplay() {
+            return replay;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.assessment.service;
+
+import com.assessment.dto.BulkOperationStatus;
+import com.assessment.dto.BulkUserFilter;
+import com.assessment.dto.BulkUserUpdateRequest;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Applies role grants/revocations and {@code enabled} changes to many users at once.
+ * <p>
+ * Each chunk of users is changed with set-based statements on {@code users} and
+ * {@code user_roles} in its own transaction, bypassing entity loading and dirty checking.
+ * Operations are queued on the bounded {@code bulkUserExecutor}. Their progress is stored in
+ * {@code bulk_operations} and updated in the same transaction as each chunk, so any instance can
+ * report it and it survives restarts. A failed operation keeps the chunks it already committed and
+ * reports how far it got through {@link BulkOperationStatus#getLastCommittedUserId()}. An operation
+ * whose instance crashed stays {@code RUNNING} with the progress of its last committed chunk.
+ * <p>
+ * The calling user is never changed by their own operation: explicit {@code userIds} containing
+ * the caller are rejected and filters skip the caller. An admin therefore cannot disable or
+ * de-admin every administrator including themselves and lock everyone out of the API.
+ * <p>
+ * After each chunk commits, the affected usernames are evicted from the Spring Security
+ * {@link UserCache} if one is configured. This application does not configure one, so authorities
+ * are not cached here and the eviction is only a hook for when a cache is added.
+ */
+@Service
+public class UserBulkService {
+    private static final Logger logger = LoggerFactory.getLogger(UserBulkService.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<UserCache> userCache;
+    private final TaskExecutor executor;
+    private final int defaultChunkSize;
+
+    private volatile boolean shuttingDown;
+
+    public UserBulkService(NamedParameterJdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           ObjectProvider<UserCache> userCache,
+                           @Qualifier("bulkUserExecutor") TaskExecutor executor,
+                           @Value("${app.bulk.chunk-size:500}") int defaultChunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userCache = userCache;
+        this.executor = executor;
+        this.defaultChunkSize = defaultChunkSize;
+    }
+
+    /**
+     * Makes running operations stop at the next chunk boundary. The executor, shut down after
+     * this service, then waits for the chunk in flight to commit.
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+    }
+
+    /**
+     * Validates the request and queues it for execution on behalf of {@code callerUsername}.
+     *
+     * @throws IllegalArgumentException if the request selects no users, changes nothing or names unknown roles
+     * @throws BulkOperationRejectedException if the queue of pending operations is full
+     */
+    public BulkOperationStatus submit(BulkUserUpdateRequest request, String callerUsername) {
+        boolean hasIds = request.getUserIds() != null && !request.getUserIds().isEmpty();
+        if (hasIds == (request.getFilter() != null)) {
+            throw new IllegalArgumentException("Exactly one of userIds or filter must be provided");
+        }
+        BulkUserFilter filter = request.getFilter();
+        if (filter != null && filter.getEnabled() == null && filter.getRole() == null
+                && filter.getUsernamePrefix() == null && filter.getEmailDomain() == null) {
+            throw new IllegalArgumentException("Filter must set at least one criterion");
+        }
+        Set<String> grantRoles = request.getGrantRoles() == null ? Set.of() : request.getGrantRoles();
+        Set<String> revokeRoles = request.getRevokeRoles() == null ? Set.of() : request.getRevokeRoles();
+        if (grantRoles.isEmpty() && revokeRoles.isEmpty() && request.getEnabled() == null) {
+            throw new IllegalArgumentException("No changes requested");
+        }
+        if (!Collections.disjoint(grantRoles, revokeRoles)) {
+            throw new IllegalArgumentException("A role cannot be granted and revoked in the same operation");
+        }
+        Long callerId = findUserId(callerUsername);
+        if (hasIds && callerId != null && request.getUserIds().contains(callerId)) {
+            throw new IllegalArgumentException("userIds must not include the calling user");
+        }
+        Set<String> requestedRoles = new HashSet<>(grantRoles);
+        requestedRoles.addAll(revokeRoles);
+        requireExistingRoles(requestedRoles);
+
+        int chunkSize = request.getChunkSize() != null ? request.getChunkSize() : defaultChunkSize;
+        String operationId = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO bulk_operations (id, state, submitted_by, submitted_at) "
+                        + "VALUES (:id, :state, :submittedBy, :submittedAt)",
+                new MapSqlParameterSource("id", operationId)
+                        .addValue("state", BulkOperationStatus.State.QUEUED.name())
+                        .addValue("submittedBy", callerUsername)
+                        .addValue("submittedAt", LocalDateTime.now()));
+        try {
+            executor.execute(() -> run(operationId, request, grantRoles, revokeRoles, chunkSize, callerId));
+        } catch (TaskRejectedException e) {
+            jdbcTemplate.update("DELETE FROM bulk_operations WHERE id = :id",
+                    new MapSqlParameterSource("id", operationId));
+            throw new BulkOperationRejectedException("Too many bulk operations in progress, retry later");
+        }
+        return getStatus(operationId).orElseThrow();
+    }
+
+    public Optional<BulkOperationStatus> getStatus(String operationId) {
+        return jdbcTemplate.query("SELECT * FROM bulk_operations WHERE id = :id",
+                new MapSqlParameterSource("id", operationId),
+                (rs, rowNum) -> BulkOperationStatus.builder()
+                        .id(rs.getString("id"))
+                        .state(BulkOperationStatus.State.valueOf(rs.getString("state")))
+                        .chunksCompleted(rs.getLong("chunks_completed"))
+                        .usersProcessed(rs.getLong("users_processed"))
+                        .rolesGranted(rs.getLong("roles_granted"))
+                        .rolesRevoked(rs.getLong("roles_revoked"))
+                        .usersUpdated(rs.getLong("users_updated"))
+                        .lastCommittedUserId(rs.getObject("last_committed_user_id", Long.class))
+                        .error(rs.getString("error"))
+                        .submittedAt(rs.getObject("submitted_at", LocalDateTime.class))
+                        .startedAt(rs.getObject("started_at", LocalDateTime.class))
+                        .finishedAt(rs.getObject("finished_at", LocalDateTime.class))
+                        .build())
+                .stream().findFirst();
+    }
+
+    private void run(String operationId, BulkUserUpdateRequest request,
+                     Set<String> grantRoles, Set<String> revokeRoles, int chunkSize, Long callerId) {
+        jdbcTemplate.update("UPDATE bulk_operations SET state = :state, started_at = :startedAt WHERE id = :id",
+                new MapSqlParameterSource("id", operationId)
+                        .addValue("state", BulkOperationStatus.State.RUNNING.name())
+                        .addValue("startedAt", LocalDateTime.now()));
+        try {
+            if (request.getFilter() != null) {
+                long lastId = 0;
+                List<UserRef> chunk;
+                while (!(chunk = selectByFilter(request.getFilter(), callerId, lastId, chunkSize)).isEmpty()) {
+                    applyChunk(operationId, chunk, grantRoles, revokeRoles, request.getEnabled());
+                    lastId = chunk.get(chunk.size() - 1).id();
+                }
+            } else {
+                List<Long> ids = request.getUserIds().stream().sorted().toList();
+                for (int from = 0; from < ids.size(); from += chunkSize) {
+                    List<UserRef> chunk = selectByIds(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+                    if (!chunk.isEmpty()) {
+                        applyChunk(operationId, chunk, grantRoles, revokeRoles, request.getEnabled());
+                    }
+                }
+            }
+            finish(operationId, BulkOperationStatus.State.COMPLETED, null);
+            logger.info("Bulk user operation {} completed", operationId);
+        } catch (RuntimeException e) {
+            BulkOperationStatus progress = getStatus(operationId).orElseThrow();
+            String error = String.format("Failed after %d committed chunk(s), users up to ID %s were changed: %s",
+                    progress.getChunksCompleted(), progress.getLastCommittedUserId(), e.getMessage());
+            finish(operationId, BulkOperationStatus.State.FAILED, error);
+            logger.error("Bulk user operation {}: {}", operationId, error);
+        }
+    }
+
+    private void finish(String operationId, BulkOperationStatus.State state, String error) {
+        jdbcTemplate.update("UPDATE bulk_operations SET state = :state, error = :error, finished_at = :finishedAt "
+                        + "WHERE id = :id",
+                new MapSqlParameterSource("id", operationId)
+                        .addValue("state", state.name())
+                        .addValue("error", error)
+                        .addValue("finishedAt", LocalDateTime.now()));
+    }
+
+    private void applyChunk(String operationId, List<UserRef> chunk,
+                            Set<String> grantRoles, Set<String> revokeRoles, Boolean enabled) {
+        if (shuttingDown) {
+            throw new IllegalStateException("Application is shutting down");
+        }
+        List<Long> ids = chunk.stream().map(UserRef::id).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            // The primary key is the only unique constraint on user_roles, so this skips exactly the
+            // pairs already present, including ones inserted concurrently by another writer
+            int granted = grantRoles.isEmpty() ? 0 : jdbcTemplate.update(
+                    "INSERT INTO user_roles (user_id, role_id) "
+                            + "SELECT u.id, r.id FROM users u CROSS JOIN roles r "
+                            + "WHERE u.id IN (:ids) AND r.name IN (:roles) "
+                            + "ON CONFLICT DO NOTHING",
+                    new MapSqlParameterSource("ids", ids).addValue("roles", grantRoles));
+            int revoked = revokeRoles.isEmpty() ? 0 : jdbcTemplate.update(
+                    "DELETE FROM user_roles WHERE user_id IN (:ids) "
+                            + "AND role_id IN (SELECT id FROM roles WHERE name IN (:roles))",
+                    new MapSqlParameterSource("ids", ids).addValue("roles", revokeRoles));
+            // Only rows that actually change are touched, so update_users_modtime fires for those alone
+            int updated = enabled == null ? 0 : jdbcTemplate.update(
+                    "UPDATE users SET enabled = :enabled WHERE id IN (:ids) AND enabled <> :enabled",
+                    new MapSqlParameterSource("ids", ids).addValue("enabled", enabled));
+            // Progress commits together with the chunk it describes
+            jdbcTemplate.update("UPDATE bulk_operations SET chunks_completed = chunks_completed + 1, "
+                            + "users_processed = users_processed + :users, roles_granted = roles_granted + :granted, "
+                            + "roles_revoked = roles_revoked + :revoked, users_updated = users_updated + :updated, "
+                            + "last_committed_user_id = :lastUserId WHERE id = :id",
+                    new MapSqlParameterSource("id", operationId)
+                            .addValue("users", chunk.size())
+                            .addValue("granted", granted)
+                            .addValue("revoked", revoked)
+                            .addValue("updated", updated)
+                            .addValue("lastUserId", ids.get(ids.size() - 1)));
+        });
+
+        // Evict after commit so a concurrent load cannot re-cache the old authorities
+        userCache.ifAvailable(cache -> chunk.forEach(user -> cache.removeUserFromCache(user.username())));
+        logger.debug("Bulk user operation {}: chunk up to user {} applied to {} users",
+                operationId, ids.get(ids.size() - 1), chunk.size());
+    }
+
+    private List<UserRef> selectByIds(List<Long> ids) {
+        return jdbcTemplate.query(
+                "SELECT id, username FROM users WHERE id IN (:ids) ORDER BY id",
+                new MapSqlParameterSource("ids", ids),
+                (rs, rowNum) -> new UserRef(rs.getLong("id"), rs.getString("username")));
+    }
+
+    /**
+     * Keyset pagination on {@code id}, so users that stop matching the filter once changed
+     * do not shift the following chunks.
+     */
+    private List<UserRef> selectByFilter(BulkUserFilter filter, Long callerId, long lastId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT u.id, u.username FROM users u WHERE u.id > :lastId");
+        MapSqlParameterSource params = new MapSqlParameterSource("lastId", lastId).addValue("limit", limit);
+        if (callerId != null) {
+            sql.append(" AND u.id <> :callerId");
+            params.addValue("callerId", callerId);
+        }
+        if (filter.getEnabled() != null) {
+            sql.append(" AND u.enabled = :enabled");
+            params.addValue("enabled", filter.getEnabled());
+        }
+        if (filter.getUsernamePrefix() != null) {
+            sql.append(" AND u.username LIKE :usernamePrefix");
+            params.addValue("usernamePrefix", escapeLike(filter.getUsernamePrefix()) + "%");
+        }
+        if (filter.getEmailDomain() != null) {
+            sql.append(" AND LOWER(u.email) LIKE :emailDomain");
+            params.addValue("emailDomain", "%@" + escapeLike(filter.getEmailDomain().toLowerCase()));
+        }
+        if (filter.getRole() != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM user_roles ur JOIN roles r ON r.id = ur.role_id"
+                    + " WHERE ur.user_id = u.id AND r.name = :role)");
+            params.addValue("role", filter.getRole());
+        }
+        sql.append(" ORDER BY u.id LIMIT :limit");
+        return jdbcTemplate.query(sql.toString(), params,
+                (rs, rowNum) -> new UserRef(rs.getLong("id"), rs.getString("username")));
+    }
+
+    private Long findUserId(String username) {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM users WHERE username = :username",
+                new MapSqlParameterSource("username", username), Long.class);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    private void requireExistingRoles(Set<String> roleNames) {
+        if (roleNames.isEmpty()) {
+            return;
+        }
+        List<String> existing = jdbcTemplate.queryForList(
+                "SELECT name FROM roles WHERE name IN (:roles)",
+                new MapSqlParameterSource("roles", roleNames), String.class);
+        List<String> unknown = new ArrayList<>(roleNames);
+        unknown.removeAll(existing);
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown roles: " + String.join(", ", unknown));
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private record UserRef(long id, String username) {
+    }
+}
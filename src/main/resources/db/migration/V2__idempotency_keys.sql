@@ -0,0 +1,20 @@
+-- Idempotency Keys Table
+CREATE TABLE idempotency_keys (
+    id BIGSERIAL PRIMARY KEY,
+    idempotency_key VARCHAR(255) NOT NULL,
+    owner VARCHAR(100) NOT NULL,
+    request_method VARCHAR(10) NOT NULL,
+    request_path VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    response_status INT,
+    content_type VARCHAR(100),
+    response_headers TEXT,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_idempotency_scope UNIQUE (idempotency_key, owner, request_method, request_path)
+);
+
+-- Create Index for expiry purge
+CREATE INDEX idx_idempotency_expires_at ON idempotency_keys (expires_at);
@@ -0,0 +1,16 @@
+-- Bulk User Operations Table
+CREATE TABLE bulk_operations (
+    id VARCHAR(36) PRIMARY KEY,
+    state VARCHAR(20) NOT NULL,
+    submitted_by VARCHAR(50) NOT NULL,
+    chunks_completed BIGINT NOT NULL DEFAULT 0,
+    users_processed BIGINT NOT NULL DEFAULT 0,
+    roles_granted BIGINT NOT NULL DEFAULT 0,
+    roles_revoked BIGINT NOT NULL DEFAULT 0,
+    users_updated BIGINT NOT NULL DEFAULT 0,
+    last_committed_user_id BIGINT,
+    error TEXT,
+    submitted_at TIMESTAMP NOT NULL,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP
+);
@@ -0,0 +1,256 @@
+package com.assessment.config;
+
+import com.assessment.model.IdempotencyRecord;
+import com.assessment.repository.IdempotencyRecordRepository;
+import com.assessment.service.IdempotencyException;
+import com.assessment.service.IdempotencyService;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IdempotencyFilterTest {
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    private IdempotencyProperties properties;
+    private IdempotencyFilter filter;
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private boolean failNextExecution;
+    private boolean rejectNextExecution;
+
+    private final HttpServlet createUser = new HttpServlet() {
+        @Override
+        protected void service(HttpServletRequest request, HttpServletResponse response)
+                throws ServletException, IOException {
+            executions.incrementAndGet();
+            if (failNextExecution) {
+                failNextExecution = false;
+                throw new ServletException("boom");
+            }
+            if (rejectNextExecution) {
+                rejectNextExecution = false;
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_CREATED);
+            response.setContentType("application/json");
+            response.setHeader("Location", "/api/users/7");
+            response.setHeader("X-Request-Id", "not-replayed");
+            response.getOutputStream().write(StreamUtils.copyToByteArray(request.getInputStream()));
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        properties = new IdempotencyProperties();
+        properties.setEndpoints(List.of(
+                endpoint("POST", "/api/auth/register"),
+                endpoint("POST", "/api/users"),
+                endpoint("PUT", "/api/profiles/user/*")));
+        filter = new IdempotencyFilter(new IdempotencyService(repository, properties), properties);
+
+        given(repository.findByIdempotencyKeyAndOwnerAndRequestMethodAndRequestPath(
+                anyString(), anyString(), anyString(), anyString())).willReturn(Optional.empty());
+        given(repository.saveAndFlush(any(IdempotencyRecord.class))).willAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            record.setId(1L);
+            return record;
+        });
+        given(repository.completeInProgress(any(), anyInt(), any(), any(), any(), any(), any(), any())).willReturn(1);
+    }
+
+    @Test
+    void doFilter_WhenKeyIsRepeated_ShouldExecuteChainOnceAndReplay() throws Exception {
+        MockHttpServletResponse first = perform(request("POST", "/api/users", "retry-1", "{\"username\":\"user1\"}"));
+        MockHttpServletResponse retry = perform(request("POST", "/api/users", "retry-1", "{\"username\":\"user1\"}"));
+
+        assertEquals(1, executions.get());
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(201, retry.getStatus());
+        assertEquals("application/json", retry.getContentType());
+        assertEquals("/api/users/7", retry.getHeader("Location"));
+        assertNull(retry.getHeader("X-Request-Id"));
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+    }
+
+    @Test
+    void doFilter_WhenHeaderIsMissing_ShouldPassThrough() throws Exception {
+        perform(request("POST", "/api/users", null, "{}"));
+        perform(request("POST", "/api/users", null, "{}"));
+
+        assertEquals(2, executions.get());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void doFilter_WhenEndpointIsNotConfigured_ShouldPassThrough() throws Exception {
+        perform(request("POST", "/api/auth/login", "retry-1", "{}"));
+        perform(request("DELETE", "/api/users", "retry-1", "{}"));
+
+        assertEquals(2, executions.get());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void doFilter_WhenPathMatchesPattern_ShouldClaimKey() throws Exception {
+        perform(request("PUT", "/api/profiles/user/10", "retry-1", "{\"bio\":\"Updated bio\"}"));
+
+        assertEquals(1, executions.get());
+        verify(repository).saveAndFlush(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void doFilter_WhenKeyIsBlank_ShouldReturnBadRequest() throws Exception {
+        MockHttpServletResponse response = perform(request("POST", "/api/users", "  ", "{}"));
+
+        assertEquals(400, response.getStatus());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void doFilter_WhenKeyIsTooLong_ShouldReturnBadRequest() throws Exception {
+        MockHttpServletResponse response = perform(request("POST", "/api/users", "k".repeat(256), "{}"));
+
+        assertEquals(400, response.getStatus());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void doFilter_WhenKeyIsReusedWithDifferentBody_ShouldReturnUnprocessableEntity() throws Exception {
+        perform(request("POST", "/api/users", "retry-1", "{\"username\":\"user1\"}"));
+        MockHttpServletResponse response = perform(request("POST", "/api/users", "retry-1", "{\"username\":\"user2\"}"));
+
+        assertEquals(422, response.getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void doFilter_WhenKeyIsStillInProgress_ShouldReturnConflict() throws Exception {
+        IdempotencyService busyService = mock(IdempotencyService.class);
+        given(busyService.claim(any(), anyString())).willThrow(new IdempotencyException(HttpStatus.CONFLICT,
+                "A request with this Idempotency-Key is still in progress"));
+        filter = new IdempotencyFilter(busyService, properties);
+
+        MockHttpServletResponse response = perform(request("POST", "/api/users", "retry-1", "{}"));
+
+        assertEquals(409, response.getStatus());
+        assertEquals("A request with this Idempotency-Key is still in progress", response.getContentAsString());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void doFilter_WhenChainThrows_ShouldReleaseKeyForRetry() throws Exception {
+        failNextExecution = true;
+
+        assertThrows(ServletException.class, () -> perform(request("POST", "/api/users", "retry-1", "{}")));
+        MockHttpServletResponse retry = perform(request("POST", "/api/users", "retry-1", "{}"));
+
+        verify(repository).deleteByIdAndStatus(1L, IdempotencyRecord.Status.IN_PROGRESS);
+        assertEquals(2, executions.get());
+        assertEquals(201, retry.getStatus());
+        assertNull(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void doFilter_WhenHandlerCallsSendError_ShouldNotReplayBareStatus() throws Exception {
+        rejectNextExecution = true;
+
+        MockHttpServletResponse first = perform(request("POST", "/api/users", "retry-1", "{}"));
+        MockHttpServletResponse retry = perform(request("POST", "/api/users", "retry-1", "{}"));
+
+        assertEquals(400, first.getStatus());
+        verify(repository).deleteByIdAndStatus(1L, IdempotencyRecord.Status.IN_PROGRESS);
+        assertEquals(2, executions.get());
+        assertEquals(201, retry.getStatus());
+        assertNull(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void doFilter_WhenHandlerReadsBodyAsynchronously_ShouldNotifyReadListener() throws Exception {
+        List<String> events = new ArrayList<>();
+        MockHttpServletRequest request = request("POST", "/api/users", "retry-1", "{\"username\":\"user1\"}");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            ServletInputStream input = req.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    events.add("data:" + new String(input.readAllBytes(), StandardCharsets.UTF_8));
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    events.add("done");
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    events.add("error");
+                }
+            });
+            ((HttpServletResponse) res).setStatus(HttpServletResponse.SC_CREATED);
+            res.getOutputStream().write("{}".getBytes(StandardCharsets.UTF_8));
+        });
+
+        assertEquals(List.of("data:{\"username\":\"user1\"}", "done"), events);
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(createUser));
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        if (key != null) {
+            request.addHeader("Idempotency-Key", key);
+        }
+        return request;
+    }
+
+    private static IdempotencyProperties.Endpoint endpoint(String method, String pattern) {
+        IdempotencyProperties.Endpoint endpoint = new IdempotencyProperties.Endpoint();
+        endpoint.setMethod(method);
+        endpoint.setPattern(pattern);
+        return endpoint;
+    }
+}
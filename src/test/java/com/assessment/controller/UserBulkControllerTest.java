@@ -0,0 +1,196 @@
+package com.assessment.controller;
+
+import com.assessment.config.MethodSecurityConfig;
+import com.assessment.dto.BulkOperationStatus;
+import com.assessment.dto.BulkUserUpdateRequest;
+import com.assessment.security.JwtUtils;
+import com.assessment.security.UserDetailsServiceImpl;
+import com.assessment.service.BulkOperationRejectedException;
+import com.assessment.service.UserBulkService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@Import(MethodSecurityConfig.class) // Not picked up by the @WebMvcTest slice, but required for @PreAuthorize
+@WebMvcTest(value = UserBulkController.class, excludeAutoConfiguration = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class, JpaRepositoriesAutoConfiguration.class})
+class UserBulkControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserBulkService userBulkService;
+
+    @MockBean // Mock JwtUtils as it's needed by security filter loaded by @WebMvcTest
+    private JwtUtils jwtUtils;
+
+    @MockBean // Mock UserDetailsServiceImpl as it's needed by security filter loaded by @WebMvcTest
+    private UserDetailsServiceImpl userDetailsService;
+
+    @MockBean // Mock AuditorAware to prevent JPA context issues in web tests
+    private AuditorAware<String> auditorAware;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private BulkUserUpdateRequest request;
+    private BulkOperationStatus running;
+
+    @BeforeEach
+    void setUp() {
+        request = BulkUserUpdateRequest.builder()
+                .userIds(Set.of(1L, 2L, 3L))
+                .grantRoles(Set.of("ROLE_ADMIN"))
+                .build();
+        running = BulkOperationStatus.builder()
+                .id("op-1")
+                .state(BulkOperationStatus.State.QUEUED)
+                .build();
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void submit_WhenRequestIsValid_ShouldReturnAccepted() throws Exception {
+        given(userBulkService.submit(any(BulkUserUpdateRequest.class), anyString())).willReturn(running);
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value("op-1"))
+                .andExpect(jsonPath("$.state").value("QUEUED"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void submit_WhenRoleIsUnknown_ShouldReturnBadRequest() throws Exception {
+        given(userBulkService.submit(any(BulkUserUpdateRequest.class), anyString()))
+                .willThrow(new IllegalArgumentException("Unknown roles: ROLE_OWNER"));
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Unknown roles: ROLE_OWNER"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void submit_WhenTooManyUserIds_ShouldReturnBadRequest() throws Exception {
+        request.setUserIds(LongStream.rangeClosed(1, BulkUserUpdateRequest.MAX_USER_IDS + 1)
+                .boxed()
+                .collect(Collectors.toSet()));
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userBulkService);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void submit_WhenQueueIsFull_ShouldReturnTooManyRequests() throws Exception {
+        given(userBulkService.submit(any(BulkUserUpdateRequest.class), anyString()))
+                .willThrow(new BulkOperationRejectedException("Too many bulk operations in progress, retry later"));
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getStatus_WhenOperationExists_ShouldReturnProgress() throws Exception {
+        running.setChunksCompleted(4);
+        running.setUsersProcessed(2000);
+        given(userBulkService.getStatus("op-1")).willReturn(Optional.of(running));
+
+        mockMvc.perform(get("/api/users/bulk/op-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chunksCompleted").value(4))
+                .andExpect(jsonPath("$.usersProcessed").value(2000));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getStatus_WhenOperationDoesNotExist_ShouldReturnNotFound() throws Exception {
+        given(userBulkService.getStatus("missing")).willReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/users/bulk/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void submit_WhenCallerIsNotAdmin_ShouldReturnForbidden() throws Exception {
+        mockMvc.perform(post("/api/users/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(userBulkService);
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void getStatus_WhenCallerIsNotAdmin_ShouldReturnForbidden() throws Exception {
+        mockMvc.perform(get("/api/users/bulk/op-1"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(userBulkService);
+    }
+
+    @Test
+    void submit_WhenAnonymous_ShouldReturnUnauthorized() throws Exception {
+        mockMvc.perform(post("/api/users/bulk")
+                        .with(csrf())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(userBulkService);
+    }
+
+    @Test
+    void getStatus_WhenAnonymous_ShouldReturnUnauthorized() throws Exception {
+        mockMvc.perform(get("/api/users/bulk/op-1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(userBulkService);
+    }
+}
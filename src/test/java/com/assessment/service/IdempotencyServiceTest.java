@@ -0,0 +1,243 @@
+package com.assessment.service;
+
+import com.assessment.config.IdempotencyProperties;
+import com.assessment.model.IdempotencyRecord;
+import com.assessment.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    private IdempotencyService idempotencyService;
+
+    private final IdempotencyService.Key key =
+            new IdempotencyService.Key("anonymous", "POST", "/api/auth/register", "retry-1");
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setWaitTimeout(Duration.ofSeconds(5));
+        idempotencyService = new IdempotencyService(repository, properties);
+
+        given(repository.findByIdempotencyKeyAndOwnerAndRequestMethodAndRequestPath(
+                anyString(), anyString(), anyString(), anyString())).willReturn(Optional.empty());
+        given(repository.saveAndFlush(any(IdempotencyRecord.class))).willAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            record.setId(1L);
+            return record;
+        });
+        given(repository.completeInProgress(any(), anyInt(), any(), any(), any(), any(), any(), any())).willReturn(1);
+    }
+
+    @Test
+    void claim_WhenKeyIsCompleted_ShouldReplayStoredResponse() {
+        IdempotencyService.Claim first = idempotencyService.claim(key, "hash");
+        assertFalse(first.isReplay());
+        idempotencyService.complete(first, 200, "text/plain", Map.of(), body("User registered successfully!"));
+
+        IdempotencyService.Claim retry = idempotencyService.claim(key, "hash");
+
+        assertTrue(retry.isReplay());
+        assertEquals(200, retry.getReplay().status());
+        assertEquals("User registered successfully!", new String(retry.getReplay().body(), StandardCharsets.UTF_8));
+        verify(repository, times(1)).saveAndFlush(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void claim_WhenBodyDiffers_ShouldReject() {
+        IdempotencyService.Claim first = idempotencyService.claim(key, "hash");
+        idempotencyService.complete(first, 200, "text/plain", Map.of(), body("ok"));
+
+        IdempotencyException e = assertThrows(IdempotencyException.class,
+                () -> idempotencyService.claim(key, "other-hash"));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatus());
+    }
+
+    @Test
+    void claim_WhenDuplicateIsInFlight_ShouldWaitForFirstExecution() throws Exception {
+        IdempotencyService.Claim first = idempotencyService.claim(key, "hash");
+
+        CompletableFuture<IdempotencyService.Claim> duplicate =
+                CompletableFuture.supplyAsync(() -> idempotencyService.claim(key, "hash"));
+        Thread.sleep(100);
+        assertFalse(duplicate.isDone());
+
+        idempotencyService.complete(first, 201, "application/json", Map.of(), body("{\"id\":1}"));
+
+        IdempotencyService.Claim retry = duplicate.get(5, TimeUnit.SECONDS);
+        assertTrue(retry.isReplay());
+        assertEquals(201, retry.getReplay().status());
+        verify(repository, times(1)).saveAndFlush(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void complete_WhenServerError_ShouldReleaseKeyForRetry() {
+        IdempotencyService.Claim first = idempotencyService.claim(key, "hash");
+        idempotencyService.complete(first, 500, "text/plain", Map.of(), body("boom"));
+
+        IdempotencyService.Claim retry = idempotencyService.claim(key, "hash");
+
+        assertFalse(retry.isReplay());
+        verify(repository).deleteByIdAndStatus(1L, IdempotencyRecord.Status.IN_PROGRESS);
+    }
+
+    @Test
+    void complete_WhenErrorHasNoBody_ShouldReleaseKeyForRetry() {
+        IdempotencyService.Claim first = idempotencyService.claim(key, "hash");
+        idempotencyService.complete(first, 400, null, Map.of(), new byte[0]);
+
+        IdempotencyService.Claim retry = idempotencyService.claim(key, "hash");
+
+        assertFalse(retry.isReplay());
+        verify(repository).deleteByIdAndStatus(1L, IdempotencyRecord.Status.IN_PROGRESS);
+    }
+
+    @Test
+    void complete_WhenErrorHasBody_ShouldReplayIt() {
+        IdempotencyService.Claim first = idempotencyService.claim(key, "hash");
+        idempotencyService.complete(first, 400, "text/plain", Map.of(), body("Username already exists"));
+
+        IdempotencyService.Claim retry = idempotencyService.claim(key, "hash");
+
+        assertTrue(retry.isReplay());
+        assertEquals(400, retry.getReplay().status());
+    }
+
+    @Test
+    void claim_WhenCompletedOnAnotherInstance_ShouldReplayFromDatabase() {
+        given(repository.findByIdempotencyKeyAndOwnerAndRequestMethodAndRequestPath(
+                anyString(), anyString(), anyString(), anyString())).willReturn(Optional.of(IdempotencyRecord.builder()
+                .requestHash("hash")
+                .status(IdempotencyRecord.Status.COMPLETED)
+                .responseStatus(200)
+                .contentType("text/plain")
+                .responseBody("ok")
+                .expiresAt(LocalDateTime.now().plusHours(1))
+                .build()));
+
+        IdempotencyService.Claim claim = idempotencyService.claim(key, "hash");
+
+        assertTrue(claim.isReplay());
+        assertEquals("ok", new String(claim.getReplay().body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void claim_WhenInProgressOnAnotherInstance_ShouldNotTakeOverBeforeAbandonAfter() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setWaitTimeout(Duration.ofMillis(200));
+        IdempotencyService shortWait = new IdempotencyService(repository, properties);
+        given(repository.findByIdempotencyKeyAndOwnerAndRequestMethodAndRequestPath(
+                anyString(), anyString(), anyString(), anyString())).willReturn(Optional.of(IdempotencyRecord.builder()
+                .id(7L)
+                .requestHash("hash")
+                .status(IdempotencyRecord.Status.IN_PROGRESS)
+                .expiresAt(LocalDateTime.now().plus(properties.getAbandonAfter()))
+                .build()));
+
+        IdempotencyException e = assertThrows(IdempotencyException.class, () -> shortWait.claim(key, "hash"));
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatus());
+        verify(repository, never()).deleteIfExpired(any(), any());
+        verify(repository, never()).saveAndFlush(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void claim_WhenInProgressRowIsAbandoned_ShouldTakeItOver() {
+        given(repository.findByIdempotencyKeyAndOwnerAndRequestMethodAndRequestPath(
+                anyString(), anyString(), anyString(), anyString()))
+                .willReturn(Optional.of(IdempotencyRecord.builder()
+                        .id(7L)
+                        .requestHash("hash")
+                        .status(IdempotencyRecord.Status.IN_PROGRESS)
+                        .expiresAt(LocalDateTime.now().minusSeconds(1))
+                        .build()))
+                .willReturn(Optional.empty());
+
+        IdempotencyService.Claim claim = idempotencyService.claim(key, "hash");
+
+        assertFalse(claim.isReplay());
+        verify(repository).deleteIfExpired(eq(7L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void complete_WhenClaimWasLost_ShouldStillReplayFromMemory() {
+        given(repository.completeInProgress(any(), anyInt(), any(), any(), any(), any(), any(), any())).willReturn(0);
+        IdempotencyService.Claim first = idempotencyService.claim(key, "hash");
+        idempotencyService.complete(first, 201, "application/json", Map.of(), body("{\"id\":1}"));
+
+        IdempotencyService.Claim retry = idempotencyService.claim(key, "hash");
+
+        assertTrue(retry.isReplay());
+        assertEquals(201, retry.getReplay().status());
+    }
+
+    @Test
+    void complete_ShouldStoreReplayHeaders() {
+        IdempotencyService.Claim first = idempotencyService.claim(key, "hash");
+        idempotencyService.complete(first, 201, "application/json", Map.of("Location", "/api/users/7"), body("{}"));
+
+        verify(repository).completeInProgress(eq(1L), eq(201), eq("application/json"), eq("Location: /api/users/7\n"),
+                eq("{}"), any(LocalDateTime.class), eq(IdempotencyRecord.Status.IN_PROGRESS),
+                eq(IdempotencyRecord.Status.COMPLETED));
+        assertEquals("/api/users/7", idempotencyService.claim(key, "hash").getReplay().headers().get("Location"));
+    }
+
+    @Test
+    void claim_WhenCompletedOnAnotherInstance_ShouldReplayStoredHeaders() {
+        given(repository.findByIdempotencyKeyAndOwnerAndRequestMethodAndRequestPath(
+                anyString(), anyString(), anyString(), anyString())).willReturn(Optional.of(IdempotencyRecord.builder()
+                .requestHash("hash")
+                .status(IdempotencyRecord.Status.COMPLETED)
+                .responseStatus(201)
+                .responseHeaders("Location: /api/users/7\n")
+                .responseBody("{}")
+                .expiresAt(LocalDateTime.now().plusHours(1))
+                .build()));
+
+        IdempotencyService.Claim claim = idempotencyService.claim(key, "hash");
+
+        assertEquals(Map.of("Location", "/api/users/7"), claim.getReplay().headers());
+    }
+
+    @Test
+    void constructor_WhenAbandonAfterIsNotLongerThanWaitTimeout_ShouldFail() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setAbandonAfter(properties.getWaitTimeout());
+
+        assertThrows(IllegalArgumentException.class, () -> new IdempotencyService(repository, properties));
+    }
+
+    private static byte[] body(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,351 @@
+package com.assessment.service;
+
+import com.assessment.dto.BulkOperationStatus;
+import com.assessment.dto.BulkUserFilter;
+import com.assessment.dto.BulkUserUpdateRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.core.userdetails.UserCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class UserBulkServiceTest {
+
+    private static final String CALLER = "admin";
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private StaticListableBeanFactory beanFactory;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        beanFactory = new StaticListableBeanFactory();
+
+        // The tables of V1__init_schema.sql and V3__bulk_operations.sql the bulk statements touch;
+        // the plpgsql trigger is Postgres-only
+        jdbcTemplate.getJdbcTemplate().execute("CREATE TABLE users (id BIGINT PRIMARY KEY, "
+                + "username VARCHAR(50) UNIQUE NOT NULL, email VARCHAR(100) UNIQUE NOT NULL, "
+                + "enabled BOOLEAN NOT NULL DEFAULT TRUE)");
+        jdbcTemplate.getJdbcTemplate().execute("CREATE TABLE roles (id INT PRIMARY KEY, name VARCHAR(50) UNIQUE NOT NULL)");
+        jdbcTemplate.getJdbcTemplate().execute("CREATE TABLE user_roles (user_id BIGINT NOT NULL REFERENCES users (id), "
+                + "role_id INT NOT NULL REFERENCES roles (id), PRIMARY KEY (user_id, role_id))");
+        jdbcTemplate.getJdbcTemplate().execute("CREATE TABLE bulk_operations (id VARCHAR(36) PRIMARY KEY, "
+                + "state VARCHAR(20) NOT NULL, submitted_by VARCHAR(50) NOT NULL, "
+                + "chunks_completed BIGINT NOT NULL DEFAULT 0, users_processed BIGINT NOT NULL DEFAULT 0, "
+                + "roles_granted BIGINT NOT NULL DEFAULT 0, roles_revoked BIGINT NOT NULL DEFAULT 0, "
+                + "users_updated BIGINT NOT NULL DEFAULT 0, last_committed_user_id BIGINT, error TEXT, "
+                + "submitted_at TIMESTAMP NOT NULL, started_at TIMESTAMP, finished_at TIMESTAMP)");
+        jdbcTemplate.getJdbcTemplate().execute("INSERT INTO roles (id, name) VALUES "
+                + "(1, 'ROLE_USER'), (2, 'ROLE_ADMIN'), (3, 'ROLE_SUPPORT')");
+    }
+
+    @Test
+    void submit_WhenBothIdsAndFilterAreGiven_ShouldReject() {
+        BulkUserUpdateRequest request = BulkUserUpdateRequest.builder()
+                .userIds(Set.of(1L))
+                .filter(BulkUserFilter.builder().enabled(true).build())
+                .enabled(false)
+                .build();
+
+        assertRejected(request, "Exactly one of userIds or filter must be provided");
+    }
+
+    @Test
+    void submit_WhenNeitherIdsNorFilterAreGiven_ShouldReject() {
+        assertRejected(BulkUserUpdateRequest.builder().enabled(false).build(),
+                "Exactly one of userIds or filter must be provided");
+    }
+
+    @Test
+    void submit_WhenFilterIsEmpty_ShouldReject() {
+        BulkUserUpdateRequest request = BulkUserUpdateRequest.builder()
+                .filter(new BulkUserFilter())
+                .enabled(false)
+                .build();
+
+        assertRejected(request, "Filter must set at least one criterion");
+    }
+
+    @Test
+    void submit_WhenNothingChanges_ShouldReject() {
+        assertRejected(BulkUserUpdateRequest.builder().userIds(Set.of(1L)).build(), "No changes requested");
+    }
+
+    @Test
+    void submit_WhenRoleIsGrantedAndRevoked_ShouldReject() {
+        BulkUserUpdateRequest request = BulkUserUpdateRequest.builder()
+                .userIds(Set.of(1L))
+                .grantRoles(Set.of("ROLE_ADMIN"))
+                .revokeRoles(Set.of("ROLE_ADMIN"))
+                .build();
+
+        assertRejected(request, "A role cannot be granted and revoked in the same operation");
+    }
+
+    @Test
+    void submit_WhenRoleIsUnknown_ShouldReject() {
+        BulkUserUpdateRequest request = BulkUserUpdateRequest.builder()
+                .userIds(Set.of(1L))
+                .grantRoles(Set.of("ROLE_ADMIN", "ROLE_OWNER"))
+                .build();
+
+        assertRejected(request, "Unknown roles: ROLE_OWNER");
+    }
+
+    @Test
+    void submit_WhenUserIdsIncludeCaller_ShouldReject() {
+        insertUsers(2, true, "ROLE_ADMIN");
+        BulkUserUpdateRequest request = BulkUserUpdateRequest.builder()
+                .userIds(Set.of(1L, 2L))
+                .enabled(false)
+                .build();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service(new SyncTaskExecutor()).submit(request, "user1"));
+        assertEquals("userIds must not include the calling user", e.getMessage());
+    }
+
+    @Test
+    void submit_WhenFilterRevokesAdminFromAllAdmins_ShouldKeepCaller() {
+        insertUsers(3, true, "ROLE_ADMIN");
+
+        BulkOperationStatus status = run(BulkUserUpdateRequest.builder()
+                .filter(BulkUserFilter.builder().role("ROLE_ADMIN").build())
+                .revokeRoles(Set.of("ROLE_ADMIN"))
+                .build(), "user1");
+
+        assertEquals(2, status.getUsersProcessed());
+        assertEquals(2, status.getRolesRevoked());
+        assertEquals(1, countUsersWithRole("ROLE_ADMIN"));
+        assertEquals(1, jdbcTemplate.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM user_roles ur "
+                + "JOIN users u ON u.id = ur.user_id WHERE u.username = 'user1'", Integer.class));
+    }
+
+    @Test
+    void submit_WhenFilterDisablesAllEnabledUsers_ShouldKeepCallerEnabled() {
+        insertUsers(3, true, "ROLE_ADMIN");
+
+        BulkOperationStatus status = run(BulkUserUpdateRequest.builder()
+                .filter(BulkUserFilter.builder().enabled(true).build())
+                .enabled(false)
+                .build(), "user1");
+
+        assertEquals(2, status.getUsersUpdated());
+        assertEquals(List.of("user1"), jdbcTemplate.getJdbcTemplate().queryForList(
+                "SELECT username FROM users WHERE enabled = TRUE", String.class));
+    }
+
+    @Test
+    void submit_WithUserIds_ShouldGrantRolesInChunks() {
+        insertUsers(5, true, "ROLE_USER");
+        insertUserRole(3, "ROLE_ADMIN"); // Already granted, must not conflict
+
+        BulkOperationStatus status = run(BulkUserUpdateRequest.builder()
+                .userIds(Set.of(1L, 2L, 3L, 4L, 5L, 999L))
+                .grantRoles(Set.of("ROLE_ADMIN"))
+                .chunkSize(2)
+                .build());
+
+        assertEquals(BulkOperationStatus.State.COMPLETED, status.getState());
+        assertEquals(3, status.getChunksCompleted());
+        assertEquals(5, status.getUsersProcessed());
+        assertEquals(4, status.getRolesGranted());
+        assertEquals(Long.valueOf(5), status.getLastCommittedUserId());
+        assertEquals(5, countUsersWithRole("ROLE_ADMIN"));
+    }
+
+    @Test
+    void submit_WhenChangeRemovesUsersFromFilter_ShouldStillVisitEveryUser() {
+        insertUsers(5, true, "ROLE_USER", "ROLE_SUPPORT");
+
+        BulkOperationStatus status = run(BulkUserUpdateRequest.builder()
+                .filter(BulkUserFilter.builder().role("ROLE_SUPPORT").build())
+                .revokeRoles(Set.of("ROLE_SUPPORT"))
+                .chunkSize(2)
+                .build());
+
+        assertEquals(BulkOperationStatus.State.COMPLETED, status.getState());
+        assertEquals(3, status.getChunksCompleted());
+        assertEquals(5, status.getUsersProcessed());
+        assertEquals(5, status.getRolesRevoked());
+        assertEquals(0, countUsersWithRole("ROLE_SUPPORT"));
+        assertEquals(5, countUsersWithRole("ROLE_USER"));
+    }
+
+    @Test
+    void submit_WhenDisablingUsers_ShouldSkipUsersAlreadyDisabled() {
+        insertUsers(3, true, "ROLE_USER");
+        insertUser(4, false);
+        insertUser(5, false);
+
+        BulkOperationStatus status = run(BulkUserUpdateRequest.builder()
+                .filter(BulkUserFilter.builder().emailDomain("EXAMPLE.com").build())
+                .enabled(false)
+                .build());
+
+        assertEquals(5, status.getUsersProcessed());
+        assertEquals(3, status.getUsersUpdated());
+        assertEquals(0, jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM users WHERE enabled = TRUE", Integer.class));
+    }
+
+    @Test
+    void submit_WhenUserCacheIsConfigured_ShouldEvictAffectedUsers() {
+        insertUsers(2, true, "ROLE_USER");
+        UserCache userCache = mock(UserCache.class);
+        beanFactory.addBean("userCache", userCache);
+
+        run(BulkUserUpdateRequest.builder().userIds(Set.of(1L, 2L)).enabled(false).build());
+
+        verify(userCache).removeUserFromCache("user1");
+        verify(userCache).removeUserFromCache("user2");
+    }
+
+    @Test
+    void submit_WhenChunkFails_ShouldReportCommittedProgress() {
+        insertUsers(4, true, "ROLE_USER");
+        UserCache userCache = mock(UserCache.class);
+        doThrow(new IllegalStateException("cache unavailable")).when(userCache).removeUserFromCache(anyString());
+        beanFactory.addBean("userCache", userCache);
+
+        BulkOperationStatus status = run(BulkUserUpdateRequest.builder()
+                .userIds(Set.of(1L, 2L, 3L, 4L))
+                .enabled(false)
+                .chunkSize(2)
+                .build());
+
+        assertEquals(BulkOperationStatus.State.FAILED, status.getState());
+        assertEquals(1, status.getChunksCompleted());
+        assertEquals(Long.valueOf(2), status.getLastCommittedUserId());
+        assertTrue(status.getError().startsWith("Failed after 1 committed chunk(s), users up to ID 2 were changed"));
+        assertEquals(2, jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM users WHERE enabled = TRUE", Integer.class));
+    }
+
+    @Test
+    void submit_WhenQueued_ShouldReportQueuedUntilStarted() {
+        insertUsers(1, true, "ROLE_USER");
+        List<Runnable> queue = new ArrayList<>();
+        UserBulkService service = service(queue::add);
+
+        BulkOperationStatus queued = service.submit(BulkUserUpdateRequest.builder()
+                .userIds(Set.of(1L))
+                .enabled(false)
+                .build(), CALLER);
+
+        assertEquals(BulkOperationStatus.State.QUEUED, queued.getState());
+        assertNotNull(queued.getSubmittedAt());
+        assertNull(queued.getStartedAt());
+
+        queue.get(0).run();
+        BulkOperationStatus finished = service.getStatus(queued.getId()).orElseThrow();
+        assertEquals(BulkOperationStatus.State.COMPLETED, finished.getState());
+        assertNotNull(finished.getStartedAt());
+    }
+
+    @Test
+    void submit_WhenExecutorIsFull_ShouldReject() {
+        UserBulkService service = service(task -> {
+            throw new TaskRejectedException("queue full");
+        });
+
+        assertThrows(BulkOperationRejectedException.class, () -> service.submit(BulkUserUpdateRequest.builder()
+                .userIds(Set.of(1L))
+                .enabled(false)
+                .build(), CALLER));
+        assertEquals(0, jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM bulk_operations", Integer.class));
+    }
+
+    @Test
+    void getStatus_ShouldReadProgressStoredByAnotherInstance() {
+        insertUsers(3, true, "ROLE_USER");
+        List<Runnable> queue = new ArrayList<>();
+        UserBulkService submittingInstance = service(queue::add);
+        UserBulkService otherInstance = service(new SyncTaskExecutor());
+
+        String operationId = submittingInstance.submit(BulkUserUpdateRequest.builder()
+                .userIds(Set.of(1L, 2L, 3L))
+                .enabled(false)
+                .chunkSize(2)
+                .build(), CALLER).getId();
+        assertEquals(BulkOperationStatus.State.QUEUED, otherInstance.getStatus(operationId).orElseThrow().getState());
+
+        queue.get(0).run();
+
+        BulkOperationStatus status = otherInstance.getStatus(operationId).orElseThrow();
+        assertEquals(BulkOperationStatus.State.COMPLETED, status.getState());
+        assertEquals(2, status.getChunksCompleted());
+        assertEquals(3, status.getUsersUpdated());
+        assertEquals(Long.valueOf(3), status.getLastCommittedUserId());
+    }
+
+    private BulkOperationStatus run(BulkUserUpdateRequest request) {
+        return run(request, CALLER);
+    }
+
+    private BulkOperationStatus run(BulkUserUpdateRequest request, String caller) {
+        UserBulkService service = service(new SyncTaskExecutor());
+        String operationId = service.submit(request, caller).getId();
+        return service.getStatus(operationId).orElseThrow();
+    }
+
+    private UserBulkService service(TaskExecutor executor) {
+        return new UserBulkService(jdbcTemplate, transactionManager,
+                beanFactory.getBeanProvider(UserCache.class), executor, 500);
+    }
+
+    private void assertRejected(BulkUserUpdateRequest request, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service(new SyncTaskExecutor()).submit(request, CALLER));
+        assertEquals(message, e.getMessage());
+    }
+
+    private void insertUsers(int count, boolean enabled, String... roles) {
+        for (long id = 1; id <= count; id++) {
+            insertUser(id, enabled);
+            for (String role : roles) {
+                insertUserRole(id, role);
+            }
+        }
+    }
+
+    private void insertUser(long id, boolean enabled) {
+        jdbcTemplate.update("INSERT INTO users (id, username, email, enabled) VALUES (:id, :username, :email, :enabled)",
+                new MapSqlParameterSource("id", id)
+                        .addValue("username", "user" + id)
+                        .addValue("email", "user" + id + "@example.com")
+                        .addValue("enabled", enabled));
+    }
+
+    private void insertUserRole(long userId, String role) {
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) SELECT :userId, id FROM roles WHERE name = :role",
+                new MapSqlParameterSource("userId", userId).addValue("role", role));
+    }
+
+    private int countUsersWithRole(String role) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_roles ur JOIN roles r ON r.id = ur.role_id "
+                + "WHERE r.name = :role", new MapSqlParameterSource("role", role), Integer.class);
+    }
+}